@@ -8,6 +8,8 @@ import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent
 import com.boycottpro.models.ResponseMessage;
 import com.boycottpro.userboycotts.models.CompanySummary;
 import com.boycottpro.userboycotts.models.ResponsePojo;
+import com.boycottpro.userboycotts.tracing.InvocationTrace;
+import com.boycottpro.userboycotts.tracing.InvocationTracer;
 import com.boycottpro.utilities.JwtUtility;
 import com.boycottpro.utilities.Logger;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -21,69 +23,97 @@ import java.util.stream.Collectors;
 public class GetUserBoycottsPerCauseHandler implements RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> {
 
     private static final String TABLE_NAME = "";
+    private static final String TRACE_NAME = "get-user-boycotts-by-cause";
     private final DynamoDbClient dynamoDb;
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final InvocationTracer tracer;
 
     public GetUserBoycottsPerCauseHandler() {
-        this.dynamoDb = DynamoDbClient.create();
+        this(DynamoDbClient.create());
     }
 
     public GetUserBoycottsPerCauseHandler(DynamoDbClient dynamoDb) {
+        this(dynamoDb, InvocationTracer.fromEnvironment(TRACE_NAME));
+    }
+
+    GetUserBoycottsPerCauseHandler(DynamoDbClient dynamoDb, InvocationTracer tracer) {
         this.dynamoDb = dynamoDb;
+        this.tracer = tracer;
     }
 
     @Override
     public APIGatewayProxyResponseEvent handleRequest(APIGatewayProxyRequestEvent event, Context context) {
+        InvocationTrace trace = tracer.start(context != null ? context.getFunctionName() : null);
+        APIGatewayProxyResponseEvent result = processRequest(event, trace);
+        trace.finish(result.getStatusCode());
+        return result;
+    }
+
+    private APIGatewayProxyResponseEvent processRequest(APIGatewayProxyRequestEvent event, InvocationTrace trace) {
         String sub = null;
-        int lineNum = 38;
+        int lineNum = 54;
         try {
+            trace.begin(InvocationTrace.Stage.JWT);
             sub = JwtUtility.getSubFromRestEvent(event);
+            trace.end(InvocationTrace.Stage.JWT);
             if (sub == null) {
-            Logger.error(42, sub, "user is Unauthorized");
-            return response(401, Map.of("message", "Unauthorized"));
+            Logger.error(60, sub, "user is Unauthorized");
+            return response(401, Map.of("message", "Unauthorized"), trace);
             }
-            lineNum = 45;
+            lineNum = 63;
             Map<String, String> pathParams = event.getPathParameters();
             String causeId = (pathParams != null) ? pathParams.get("cause_id") : null;
             if (causeId == null || causeId.isEmpty()) {
-                Logger.error(49, sub, "cause_id not present");
+                Logger.error(67, sub, "cause_id not present");
                 ResponseMessage message = new ResponseMessage(400,
                         "sorry, there was an error processing your request",
                         "cause_id not present");
-                return response(400,message);
+                return response(400,message, trace);
             }
-            lineNum = 55;
-            ResponsePojo userBoycotts = getUserBoycottsByCause(sub, causeId);
-            lineNum = 57;
-            return response(200,userBoycotts);
+            lineNum = 73;
+            ResponsePojo userBoycotts = getUserBoycottsByCause(sub, causeId, trace);
+            lineNum = 75;
+            return response(200,userBoycotts, trace);
         } catch (Exception e) {
+            trace.fail();
             Logger.error(lineNum, sub, e.getMessage());
-            return response(500,Map.of("error", "Unexpected server error: " + e.getMessage()) );
+            return response(500,Map.of("error", "Unexpected server error: " + e.getMessage()), trace);
         }
     }
-    private APIGatewayProxyResponseEvent response(int status, Object body) {
+    private APIGatewayProxyResponseEvent response(int status, Object body, InvocationTrace trace) {
         String responseBody = null;
+        trace.begin(InvocationTrace.Stage.SERIALIZE);
         try {
             responseBody = objectMapper.writeValueAsString(body);
         } catch (JsonProcessingException e) {
             throw new RuntimeException(e);
         }
+        trace.end(InvocationTrace.Stage.SERIALIZE);
         return new APIGatewayProxyResponseEvent()
                 .withStatusCode(status)
                 .withHeaders(Map.of("Content-Type", "application/json"))
                 .withBody(responseBody);
     }
 
-    private ResponsePojo getUserBoycottsByCause(String userId, String causeId) {
+    private ResponsePojo getUserBoycottsByCause(String userId, String causeId, InvocationTrace trace) {
         QueryRequest request = QueryRequest.builder()
                 .tableName("user_boycotts")
                 .keyConditionExpression("user_id = :uid")
                 .expressionAttributeValues(Map.of(":uid", AttributeValue.fromS(userId)))
                 .build();
 
+        trace.begin(InvocationTrace.Stage.DYNAMODB_QUERY);
         QueryResponse response = dynamoDb.query(request);
+        trace.end(InvocationTrace.Stage.DYNAMODB_QUERY);
+
+        trace.begin(InvocationTrace.Stage.FILTER);
+        ResponsePojo result = toResponsePojo(response.items(), causeId);
+        trace.end(InvocationTrace.Stage.FILTER);
+        return result;
+    }
 
-        List<Map<String, AttributeValue>> matchingRecords = response.items().stream()
+    private ResponsePojo toResponsePojo(List<Map<String, AttributeValue>> items, String causeId) {
+        List<Map<String, AttributeValue>> matchingRecords = items.stream()
                 .filter(item -> item.containsKey("cause_id") &&
                         item.get("cause_id").s().equals(causeId))
                 .collect(Collectors.toList());
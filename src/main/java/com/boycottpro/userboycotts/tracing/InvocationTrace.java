@@ -0,0 +1,182 @@
+package com.boycottpro.userboycotts.tracing;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Timing record for a single handler invocation, broken down into stages.
+ * Unsampled invocations share the {@link #NOOP} instance, so begin/end calls
+ * cost a field read and allocate nothing.
+ */
+public final class InvocationTrace {
+
+    public enum Stage {
+        JWT("jwt"),
+        DYNAMODB_QUERY("dynamodb_query"),
+        FILTER("filter"),
+        SERIALIZE("serialize");
+
+        private final String segmentName;
+
+        Stage(String segmentName) {
+            this.segmentName = segmentName;
+        }
+
+        public String getSegmentName() {
+            return segmentName;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    public static final InvocationTrace NOOP = new InvocationTrace();
+
+    private final boolean sampled;
+    private final String name;
+    private final String traceId;
+    private final String parentId;
+    private final PrintStream out;
+    private final long startEpochMillis;
+    private final long startNanos;
+    private final long[] stageStarts;
+    private final long[] stageEnds;
+    private final boolean[] started;
+    private final boolean[] ended;
+    private final boolean[] faulted;
+
+    private InvocationTrace() {
+        this.sampled = false;
+        this.name = null;
+        this.traceId = null;
+        this.parentId = null;
+        this.out = null;
+        this.startEpochMillis = 0L;
+        this.startNanos = 0L;
+        this.stageStarts = null;
+        this.stageEnds = null;
+        this.started = null;
+        this.ended = null;
+        this.faulted = null;
+    }
+
+    InvocationTrace(String name, String traceId, String parentId, PrintStream out) {
+        this.sampled = true;
+        this.name = name;
+        this.traceId = traceId;
+        this.parentId = parentId;
+        this.out = out;
+        this.startEpochMillis = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+        this.stageStarts = new long[STAGES.length];
+        this.stageEnds = new long[STAGES.length];
+        this.started = new boolean[STAGES.length];
+        this.ended = new boolean[STAGES.length];
+        this.faulted = new boolean[STAGES.length];
+    }
+
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    /**
+     * Starts timing a stage. Each stage is recorded once per invocation, so
+     * a repeat (e.g. serializing the 500 body after the 200 body failed)
+     * keeps the first attempt.
+     */
+    public void begin(Stage stage) {
+        if (!sampled || started[stage.ordinal()]) {
+            return;
+        }
+        stageStarts[stage.ordinal()] = System.nanoTime();
+        started[stage.ordinal()] = true;
+    }
+
+    public void end(Stage stage) {
+        if (!sampled || !started[stage.ordinal()] || ended[stage.ordinal()]) {
+            return;
+        }
+        stageEnds[stage.ordinal()] = System.nanoTime();
+        ended[stage.ordinal()] = true;
+    }
+
+    /**
+     * Closes any stage still open at this point and marks it as the one that
+     * failed. Called from the handler's catch block, before error handling
+     * starts, so the failed stage does not absorb the time spent reporting it.
+     */
+    public void fail() {
+        if (!sampled) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (int i = 0; i < STAGES.length; i++) {
+            if (started[i] && !ended[i]) {
+                stageEnds[i] = now;
+                ended[i] = true;
+                faulted[i] = true;
+            }
+        }
+    }
+
+    /**
+     * Writes the trace as a single X-Ray segment document line. Stages that
+     * never started are left out of the subsegments; any still open are
+     * closed as failed.
+     */
+    public void finish(int statusCode) {
+        if (!sampled) {
+            return;
+        }
+        fail();
+        out.println(toSegmentJson(System.nanoTime(), statusCode));
+    }
+
+    String toSegmentJson(long endNanos, int statusCode) {
+        StringBuilder sb = new StringBuilder(512);
+        sb.append("{\"name\":\"").append(name).append('"')
+                .append(",\"id\":\"").append(newId()).append('"')
+                .append(",\"trace_id\":\"").append(traceId).append('"');
+        if (parentId != null) {
+            sb.append(",\"parent_id\":\"").append(parentId).append('"');
+        }
+        sb.append(",\"start_time\":").append(epochSeconds(startNanos))
+                .append(",\"end_time\":").append(epochSeconds(endNanos))
+                .append(",\"http\":{\"response\":{\"status\":").append(statusCode).append("}}");
+        if (statusCode >= 500) {
+            sb.append(",\"fault\":true");
+        } else if (statusCode >= 400) {
+            sb.append(",\"error\":true");
+        }
+        sb.append(",\"subsegments\":[");
+        boolean first = true;
+        for (int i = 0; i < STAGES.length; i++) {
+            if (!started[i]) {
+                continue;
+            }
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append("{\"name\":\"").append(STAGES[i].getSegmentName()).append('"')
+                    .append(",\"id\":\"").append(newId()).append('"')
+                    .append(",\"start_time\":").append(epochSeconds(stageStarts[i]))
+                    .append(",\"end_time\":").append(epochSeconds(stageEnds[i]));
+            if (faulted[i]) {
+                sb.append(",\"fault\":true");
+            }
+            sb.append('}');
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    private String epochSeconds(long nanos) {
+        long micros = startEpochMillis * 1_000L + (nanos - startNanos) / 1_000L;
+        return String.format(Locale.ROOT, "%d.%06d", micros / 1_000_000L, micros % 1_000_000L);
+    }
+
+    private static String newId() {
+        return String.format(Locale.ROOT, "%016x", ThreadLocalRandom.current().nextLong());
+    }
+}
@@ -0,0 +1,97 @@
+package com.boycottpro.userboycotts.tracing;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Decides per invocation whether to record an {@link InvocationTrace}.
+ * The sample rate comes from the TRACE_SAMPLE_RATE environment variable
+ * (0.0 to 1.0, default 0 = tracing off).
+ */
+public class InvocationTracer {
+
+    public static final String SAMPLE_RATE_ENV = "TRACE_SAMPLE_RATE";
+    private static final String TRACE_HEADER_PROPERTY = "com.amazonaws.xray.traceHeader";
+    private static final Pattern ROOT_PATTERN = Pattern.compile("Root=(1-[0-9a-f]{8}-[0-9a-f]{24})");
+    private static final Pattern PARENT_PATTERN = Pattern.compile("Parent=([0-9a-f]{16})");
+
+    private final String name;
+    private final double sampleRate;
+    private final PrintStream out;
+
+    public InvocationTracer(String name, double sampleRate, PrintStream out) {
+        this.name = name;
+        this.sampleRate = sampleRate;
+        this.out = out;
+    }
+
+    public static InvocationTracer fromEnvironment(String name) {
+        return new InvocationTracer(name, parseSampleRate(System.getenv(SAMPLE_RATE_ENV)), System.out);
+    }
+
+    static double parseSampleRate(String value) {
+        if (value == null || value.isBlank()) {
+            return 0.0;
+        }
+        try {
+            double rate = Double.parseDouble(value.trim());
+            if (Double.isNaN(rate)) {
+                return 0.0;
+            }
+            return Math.max(0.0, Math.min(1.0, rate));
+        } catch (NumberFormatException e) {
+            return 0.0;
+        }
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public InvocationTrace start() {
+        return start(null);
+    }
+
+    /**
+     * Starts a trace named after the invoked function, e.g. the deployed
+     * Lambda name from the invocation context, so each environment's segments
+     * match its own X-Ray node. Falls back to the tracer's default name.
+     */
+    public InvocationTrace start(String functionName) {
+        if (sampleRate <= 0.0) {
+            return InvocationTrace.NOOP;
+        }
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return InvocationTrace.NOOP;
+        }
+        String segmentName = functionName != null ? functionName : name;
+        // Reuse the Lambda-provided X-Ray root and parent so the segment nests
+        // under the function segment; otherwise start a new trace with no parent.
+        // The Java runtime updates the trace header system property on every
+        // invocation; the _X_AMZN_TRACE_ID environment variable is fixed at JVM
+        // start and would tie every request in a warm container to one trace.
+        String header = System.getProperty(TRACE_HEADER_PROPERTY);
+        String traceId = headerValue(ROOT_PATTERN, header);
+        if (traceId == null) {
+            return new InvocationTrace(segmentName, newTraceId(), null, out);
+        }
+        return new InvocationTrace(segmentName, traceId, headerValue(PARENT_PATTERN, header), out);
+    }
+
+    private static String headerValue(Pattern pattern, String header) {
+        if (header == null) {
+            return null;
+        }
+        Matcher matcher = pattern.matcher(header);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static String newTraceId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return String.format(Locale.ROOT, "1-%08x-%08x%016x",
+                System.currentTimeMillis() / 1000L, random.nextInt(), random.nextLong());
+    }
+}
@@ -0,0 +1,143 @@
+package com.boycottpro.userboycotts;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.boycottpro.userboycotts.tracing.InvocationTrace;
+import com.boycottpro.userboycotts.tracing.InvocationTracer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Measures what tracing adds to handleRequest. Excluded from the normal
+ * build; run with: mvn test -Pdev,benchmark
+ */
+@Tag("benchmark")
+public class GetUserBoycottsPerCauseHandlerBenchmarkTest {
+
+    private static final int ROUNDS = 5;
+    private static final int HANDLER_ITERATIONS = 20_000;
+    private static final int STAGE_ITERATIONS = 10_000_000;
+    private static final InvocationTrace.Stage[] STAGES = InvocationTrace.Stage.values();
+
+    // generous bounds so the check fails on regressions, not on a noisy build agent
+    private static final double MAX_UNSAMPLED_OVERHEAD_NANOS = 25.0;
+    private static final double MAX_SAMPLED_OVERHEAD_NANOS = 50_000.0;
+
+    private static long sink;
+
+    @Test
+    public void testUnsampledTracingOverhead(TestReporter reporter) {
+        InvocationTracer tracer = new InvocationTracer("bench", 0.0, System.out);
+
+        double baseline = Double.MAX_VALUE;
+        double traced = Double.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            baseline = Math.min(baseline, nanosPerOp(() -> runStages(null), STAGE_ITERATIONS));
+            traced = Math.min(traced, nanosPerOp(() -> runStages(tracer), STAGE_ITERATIONS));
+        }
+
+        String result = String.format(Locale.ROOT, "baseline %.1f ns, traced %.1f ns per invocation", baseline, traced);
+        reporter.publishEntry("unsampled stage tracing", result);
+        assertTrue(traced - baseline < MAX_UNSAMPLED_OVERHEAD_NANOS, "unsampled tracing too slow: " + result);
+    }
+
+    @Test
+    public void testSampledHandlerOverhead(TestReporter reporter) {
+        GetUserBoycottsPerCauseHandler unsampled = newHandler(0.0);
+        GetUserBoycottsPerCauseHandler sampled = newHandler(1.0);
+        APIGatewayProxyRequestEvent event = newEvent();
+        Context context = mock(Context.class, withSettings().stubOnly());
+
+        double unsampledNanos = Double.MAX_VALUE;
+        double sampledNanos = Double.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            unsampledNanos = Math.min(unsampledNanos,
+                    nanosPerOp(() -> runHandler(unsampled, event, context), HANDLER_ITERATIONS));
+            sampledNanos = Math.min(sampledNanos,
+                    nanosPerOp(() -> runHandler(sampled, event, context), HANDLER_ITERATIONS));
+        }
+
+        String result = String.format(Locale.ROOT, "unsampled %.0f ns, sampled %.0f ns per invocation",
+                unsampledNanos, sampledNanos);
+        reporter.publishEntry("handleRequest", result);
+        assertTrue(sampledNanos - unsampledNanos < MAX_SAMPLED_OVERHEAD_NANOS, "sampled tracing too slow: " + result);
+    }
+
+    private static GetUserBoycottsPerCauseHandler newHandler(double sampleRate) {
+        // stubOnly keeps Mockito from recording every one of the benchmark's invocations
+        DynamoDbClient dynamoDb = mock(DynamoDbClient.class, withSettings().stubOnly());
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            items.add(Map.of(
+                    "company_id", AttributeValue.fromS("comp" + i),
+                    "company_name", AttributeValue.fromS("Company " + i),
+                    "cause_id", AttributeValue.fromS(i % 2 == 0 ? "cause456" : "other"),
+                    "cause_desc", AttributeValue.fromS("Test cause"),
+                    "timestamp", AttributeValue.fromS("2025-06-2" + i + "T10:00:00Z")
+            ));
+        }
+        when(dynamoDb.query(any(QueryRequest.class)))
+                .thenReturn(QueryResponse.builder().items(items).build());
+
+        return new GetUserBoycottsPerCauseHandler(dynamoDb, new InvocationTracer("bench", sampleRate,
+                new PrintStream(OutputStream.nullOutputStream())));
+    }
+
+    private static APIGatewayProxyRequestEvent newEvent() {
+        APIGatewayProxyRequestEvent event = new APIGatewayProxyRequestEvent();
+        Map<String, Object> authorizer = new HashMap<>();
+        authorizer.put("claims", Map.of("sub", "11111111-2222-3333-4444-555555555555"));
+        APIGatewayProxyRequestEvent.ProxyRequestContext rc = new APIGatewayProxyRequestEvent.ProxyRequestContext();
+        rc.setAuthorizer(authorizer);
+        event.setRequestContext(rc);
+        event.setPathParameters(Map.of("cause_id", "cause456"));
+        return event;
+    }
+
+    private static double nanosPerOp(Runnable loop, int iterations) {
+        long start = System.nanoTime();
+        loop.run();
+        return (double) (System.nanoTime() - start) / iterations;
+    }
+
+    private static void runHandler(GetUserBoycottsPerCauseHandler handler,
+                                   APIGatewayProxyRequestEvent event, Context context) {
+        for (int i = 0; i < HANDLER_ITERATIONS; i++) {
+            sink += handler.handleRequest(event, context).getBody().length();
+        }
+    }
+
+    private static void runStages(InvocationTracer tracer) {
+        for (int i = 0; i < STAGE_ITERATIONS; i++) {
+            InvocationTrace trace = tracer != null ? tracer.start() : null;
+            for (InvocationTrace.Stage stage : STAGES) {
+                if (trace != null) {
+                    trace.begin(stage);
+                }
+                sink += stage.ordinal() ^ i;
+                if (trace != null) {
+                    trace.end(stage);
+                }
+            }
+            if (trace != null) {
+                trace.finish(200);
+            }
+        }
+    }
+}
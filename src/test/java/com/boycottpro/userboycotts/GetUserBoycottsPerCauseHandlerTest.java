@@ -4,16 +4,23 @@ import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
 import com.boycottpro.models.ResponseMessage;
+import com.boycottpro.userboycotts.tracing.InvocationTrace;
+import com.boycottpro.userboycotts.tracing.InvocationTracer;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -31,11 +38,15 @@ public class GetUserBoycottsPerCauseHandlerTest {
     @Mock
     private Context context;
 
-    @InjectMocks
     private GetUserBoycottsPerCauseHandler handler;
 
     private ObjectMapper objectMapper = new ObjectMapper();
 
+    @BeforeEach
+    public void setUp() {
+        handler = new GetUserBoycottsPerCauseHandler(dynamoDb);
+    }
+
     @Test
     public void testHandleRequest_validRequest_returnsBoycotts() throws Exception {
         String userId = "user123";
@@ -168,7 +179,7 @@ public class GetUserBoycottsPerCauseHandlerTest {
         handler = new GetUserBoycottsPerCauseHandler(dynamoDb);
 
         // Use reflection to access the private response method
-        java.lang.reflect.Method responseMethod = GetUserBoycottsPerCauseHandler.class.getDeclaredMethod("response", int.class, Object.class);
+        java.lang.reflect.Method responseMethod = GetUserBoycottsPerCauseHandler.class.getDeclaredMethod("response", int.class, Object.class, InvocationTrace.class);
         responseMethod.setAccessible(true);
 
         // Create an object that will cause JsonProcessingException
@@ -185,7 +196,7 @@ public class GetUserBoycottsPerCauseHandlerTest {
         // This should trigger the JsonProcessingException -> RuntimeException path
         RuntimeException exception = assertThrows(RuntimeException.class, () -> {
             try {
-                responseMethod.invoke(handler, 500, circularMap);
+                responseMethod.invoke(handler, 500, circularMap, InvocationTrace.NOOP);
             } catch (java.lang.reflect.InvocationTargetException e) {
                 if (e.getCause() instanceof RuntimeException) {
                     throw (RuntimeException) e.getCause();
@@ -453,4 +464,77 @@ public class GetUserBoycottsPerCauseHandlerTest {
         assertTrue(response.getBody().contains("MatchingCorp"));
     }
 
+    @Test
+    public void testSampledInvocationWritesTraceSegment() throws Exception {
+        ByteArrayOutputStream traceOutput = new ByteArrayOutputStream();
+        handler = new GetUserBoycottsPerCauseHandler(dynamoDb, new InvocationTracer("get-user-boycotts-by-cause", 1.0,
+                new PrintStream(traceOutput, true, StandardCharsets.UTF_8)));
+
+        Map<String, AttributeValue> item = Map.of(
+                "company_id", AttributeValue.fromS("comp123"),
+                "company_name", AttributeValue.fromS("TracedCorp"),
+                "cause_id", AttributeValue.fromS("cause456"),
+                "cause_desc", AttributeValue.fromS("Test cause"),
+                "timestamp", AttributeValue.fromS("2025-06-20T10:00:00Z")
+        );
+        when(dynamoDb.query(any(QueryRequest.class)))
+                .thenReturn(QueryResponse.builder().items(List.of(item)).build());
+
+        APIGatewayProxyRequestEvent event = new APIGatewayProxyRequestEvent();
+        Map<String, Object> authorizer = new HashMap<>();
+        authorizer.put("claims", Map.of("sub", "11111111-2222-3333-4444-555555555555"));
+        APIGatewayProxyRequestEvent.ProxyRequestContext rc = new APIGatewayProxyRequestEvent.ProxyRequestContext();
+        rc.setAuthorizer(authorizer);
+        event.setRequestContext(rc);
+        event.setPathParameters(Map.of("cause_id", "cause456"));
+
+        when(context.getFunctionName()).thenReturn("get-user-boycotts-by-cause-dev");
+
+        APIGatewayProxyResponseEvent response = handler.handleRequest(event, context);
+
+        assertEquals(200, response.getStatusCode());
+        JsonNode segment = objectMapper.readTree(traceOutput.toString(StandardCharsets.UTF_8));
+        assertEquals("get-user-boycotts-by-cause-dev", segment.get("name").asText());
+        assertEquals(200, segment.get("http").get("response").get("status").asInt());
+        List<String> stages = new ArrayList<>();
+        segment.get("subsegments").forEach(subsegment -> stages.add(subsegment.get("name").asText()));
+        assertEquals(List.of("jwt", "dynamodb_query", "filter", "serialize"), stages);
+    }
+
+    @Test
+    public void testFailedInvocationMarksFailedStageWithoutOverlap() throws Exception {
+        ByteArrayOutputStream traceOutput = new ByteArrayOutputStream();
+        handler = new GetUserBoycottsPerCauseHandler(dynamoDb, new InvocationTracer("get-user-boycotts-by-cause", 1.0,
+                new PrintStream(traceOutput, true, StandardCharsets.UTF_8)));
+
+        when(dynamoDb.query(any(QueryRequest.class))).thenThrow(new RuntimeException("DynamoDB failure"));
+
+        APIGatewayProxyRequestEvent event = new APIGatewayProxyRequestEvent();
+        Map<String, Object> authorizer = new HashMap<>();
+        authorizer.put("claims", Map.of("sub", "11111111-2222-3333-4444-555555555555"));
+        APIGatewayProxyRequestEvent.ProxyRequestContext rc = new APIGatewayProxyRequestEvent.ProxyRequestContext();
+        rc.setAuthorizer(authorizer);
+        event.setRequestContext(rc);
+        event.setPathParameters(Map.of("cause_id", "cause456"));
+
+        APIGatewayProxyResponseEvent response = handler.handleRequest(event, mock(Context.class));
+
+        assertEquals(500, response.getStatusCode());
+        JsonNode segment = objectMapper.readTree(traceOutput.toString(StandardCharsets.UTF_8));
+        assertEquals("get-user-boycotts-by-cause", segment.get("name").asText());
+        assertTrue(segment.get("fault").asBoolean());
+        JsonNode subsegments = segment.get("subsegments");
+        List<String> stages = new ArrayList<>();
+        subsegments.forEach(subsegment -> stages.add(subsegment.get("name").asText()));
+        assertEquals(List.of("jwt", "dynamodb_query", "serialize"), stages);
+        assertNull(subsegments.get(0).get("fault"));
+        assertTrue(subsegments.get(1).get("fault").asBoolean());
+        assertNull(subsegments.get(2).get("fault"));
+        for (int i = 1; i < subsegments.size(); i++) {
+            assertTrue(subsegments.get(i).get("start_time").asDouble()
+                    >= subsegments.get(i - 1).get("end_time").asDouble(),
+                    "subsegment " + stages.get(i) + " overlaps " + stages.get(i - 1));
+        }
+    }
+
 }
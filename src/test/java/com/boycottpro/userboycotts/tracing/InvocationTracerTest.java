@@ -0,0 +1,270 @@
+package com.boycottpro.userboycotts.tracing;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class InvocationTracerTest {
+
+    private static final InvocationTrace.Stage[] STAGES = InvocationTrace.Stage.values();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testZeroSampleRateReturnsNoop() {
+        InvocationTracer tracer = new InvocationTracer("test", 0.0, System.out);
+
+        InvocationTrace trace = tracer.start();
+
+        assertSame(InvocationTrace.NOOP, trace);
+        assertFalse(trace.isSampled());
+    }
+
+    @Test
+    public void testFullSampleRateReturnsSampledTrace() {
+        InvocationTracer tracer = new InvocationTracer("test", 1.0, System.out);
+
+        InvocationTrace trace = tracer.start();
+
+        assertNotSame(InvocationTrace.NOOP, trace);
+        assertTrue(trace.isSampled());
+    }
+
+    @Test
+    public void testPartialSampleRateSamplesSomeInvocations() {
+        InvocationTracer tracer = new InvocationTracer("test", 0.5, System.out);
+
+        int sampled = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (tracer.start().isSampled()) {
+                sampled++;
+            }
+        }
+
+        assertTrue(sampled > 4_000 && sampled < 6_000, "sampled " + sampled + " of 10000");
+    }
+
+    @Test
+    public void testParseSampleRate() {
+        assertEquals(0.0, InvocationTracer.parseSampleRate(null));
+        assertEquals(0.0, InvocationTracer.parseSampleRate(" "));
+        assertEquals(0.0, InvocationTracer.parseSampleRate("abc"));
+        assertEquals(0.0, InvocationTracer.parseSampleRate("NaN"));
+        assertEquals(0.0, InvocationTracer.parseSampleRate("-1"));
+        assertEquals(1.0, InvocationTracer.parseSampleRate("5"));
+        assertEquals(0.25, InvocationTracer.parseSampleRate(" 0.25 "));
+    }
+
+    @Test
+    public void testFromEnvironment() {
+        InvocationTracer tracer = InvocationTracer.fromEnvironment("test");
+
+        assertEquals(InvocationTracer.parseSampleRate(System.getenv(InvocationTracer.SAMPLE_RATE_ENV)),
+                tracer.getSampleRate());
+    }
+
+    @Test
+    public void testTraceIdUsesLambdaTraceHeader() throws Exception {
+        String root = "1-5759e988-bd862e3fe1be46a994272793";
+        System.setProperty("com.amazonaws.xray.traceHeader", "Root=" + root + ";Parent=53995c3f42cd8ad8;Sampled=1");
+        try {
+            JsonNode segment = sampledSegment();
+
+            assertEquals(root, segment.get("trace_id").asText());
+            assertEquals("53995c3f42cd8ad8", segment.get("parent_id").asText());
+        } finally {
+            System.clearProperty("com.amazonaws.xray.traceHeader");
+        }
+    }
+
+    @Test
+    public void testTraceIdGeneratedWhenHeaderMissingOrMalformed() throws Exception {
+        System.clearProperty("com.amazonaws.xray.traceHeader");
+        JsonNode segment = sampledSegment();
+        assertTrue(segment.get("trace_id").asText().matches("1-[0-9a-f]{8}-[0-9a-f]{24}"));
+        assertNull(segment.get("parent_id"));
+
+        // a parent without a root belongs to no trace we can join
+        System.setProperty("com.amazonaws.xray.traceHeader", "Parent=53995c3f42cd8ad8");
+        try {
+            segment = sampledSegment();
+            assertTrue(segment.get("trace_id").asText().matches("1-[0-9a-f]{8}-[0-9a-f]{24}"));
+            assertNull(segment.get("parent_id"));
+        } finally {
+            System.clearProperty("com.amazonaws.xray.traceHeader");
+        }
+    }
+
+    @Test
+    public void testSegmentNamedAfterFunction() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        InvocationTracer tracer = new InvocationTracer("default-name", 1.0, new PrintStream(bytes, true, StandardCharsets.UTF_8));
+
+        tracer.start("get-user-boycotts-by-cause-dev").finish(200);
+        tracer.start(null).finish(200);
+
+        String[] lines = bytes.toString(StandardCharsets.UTF_8).split("\\R");
+        assertEquals("get-user-boycotts-by-cause-dev", objectMapper.readTree(lines[0]).get("name").asText());
+        assertEquals("default-name", objectMapper.readTree(lines[1]).get("name").asText());
+    }
+
+    @Test
+    public void testNoopTraceWritesNothing() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        InvocationTrace trace = new InvocationTracer("test", 0.0, new PrintStream(bytes)).start();
+
+        trace.begin(InvocationTrace.Stage.JWT);
+        trace.end(InvocationTrace.Stage.JWT);
+        trace.finish(200);
+
+        assertEquals(0, bytes.size());
+    }
+
+    @Test
+    public void testSampledTraceWritesSegmentDocument() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        InvocationTrace trace = new InvocationTracer("test-fn", 1.0, new PrintStream(bytes, true, StandardCharsets.UTF_8)).start();
+
+        trace.begin(InvocationTrace.Stage.JWT);
+        trace.end(InvocationTrace.Stage.JWT);
+        trace.begin(InvocationTrace.Stage.DYNAMODB_QUERY);
+        trace.end(InvocationTrace.Stage.DYNAMODB_QUERY);
+        trace.begin(InvocationTrace.Stage.SERIALIZE);
+        trace.end(InvocationTrace.Stage.SERIALIZE);
+        trace.finish(200);
+
+        String output = bytes.toString(StandardCharsets.UTF_8).trim();
+        assertFalse(output.contains("\n"), "segment should be a single log line");
+        JsonNode segment = objectMapper.readTree(output);
+        assertEquals("test-fn", segment.get("name").asText());
+        assertTrue(segment.get("id").asText().matches("[0-9a-f]{16}"));
+        assertTrue(segment.get("trace_id").asText().matches("1-[0-9a-f]{8}-[0-9a-f]{24}"));
+        assertEquals(200, segment.get("http").get("response").get("status").asInt());
+        assertNull(segment.get("error"));
+        assertNull(segment.get("fault"));
+        assertTrue(segment.get("end_time").asDouble() >= segment.get("start_time").asDouble());
+
+        JsonNode subsegments = segment.get("subsegments");
+        assertEquals(3, subsegments.size());
+        assertEquals("jwt", subsegments.get(0).get("name").asText());
+        assertEquals("dynamodb_query", subsegments.get(1).get("name").asText());
+        assertEquals("serialize", subsegments.get(2).get("name").asText());
+        for (JsonNode subsegment : subsegments) {
+            assertTrue(subsegment.get("start_time").asDouble() >= segment.get("start_time").asDouble());
+            assertTrue(subsegment.get("end_time").asDouble() >= subsegment.get("start_time").asDouble());
+        }
+    }
+
+    @Test
+    public void testFailClosesOpenStageAsFault() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        InvocationTrace trace = new InvocationTracer("test-fn", 1.0, new PrintStream(bytes, true, StandardCharsets.UTF_8)).start();
+
+        trace.begin(InvocationTrace.Stage.JWT);
+        trace.end(InvocationTrace.Stage.JWT);
+        trace.begin(InvocationTrace.Stage.DYNAMODB_QUERY);
+        trace.fail();
+        Thread.sleep(5);
+        trace.begin(InvocationTrace.Stage.SERIALIZE);
+        trace.end(InvocationTrace.Stage.SERIALIZE);
+        trace.finish(500);
+
+        JsonNode segment = objectMapper.readTree(bytes.toString(StandardCharsets.UTF_8));
+        assertTrue(segment.get("fault").asBoolean());
+        JsonNode subsegments = segment.get("subsegments");
+        assertNull(subsegments.get(0).get("fault"));
+        JsonNode query = subsegments.get(1);
+        assertEquals("dynamodb_query", query.get("name").asText());
+        assertTrue(query.get("fault").asBoolean());
+        // the failed stage stops at fail(), not at the end of the invocation
+        assertTrue(query.get("end_time").asDouble() <= subsegments.get(2).get("start_time").asDouble());
+        assertNull(subsegments.get(2).get("fault"));
+    }
+
+    @Test
+    public void testFinishClosesStageLeftOpenAsFault() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        InvocationTrace trace = new InvocationTracer("test-fn", 1.0, new PrintStream(bytes, true, StandardCharsets.UTF_8)).start();
+
+        trace.begin(InvocationTrace.Stage.FILTER);
+        trace.finish(200);
+
+        JsonNode filter = objectMapper.readTree(bytes.toString(StandardCharsets.UTF_8)).get("subsegments").get(0);
+        assertEquals("filter", filter.get("name").asText());
+        assertTrue(filter.get("fault").asBoolean());
+    }
+
+    @Test
+    public void testStageIsRecordedOnce() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        InvocationTrace trace = new InvocationTracer("test-fn", 1.0, new PrintStream(bytes, true, StandardCharsets.UTF_8)).start();
+
+        trace.end(InvocationTrace.Stage.SERIALIZE);
+        trace.begin(InvocationTrace.Stage.SERIALIZE);
+        trace.end(InvocationTrace.Stage.SERIALIZE);
+        Thread.sleep(5);
+        trace.begin(InvocationTrace.Stage.SERIALIZE);
+        trace.end(InvocationTrace.Stage.SERIALIZE);
+        trace.finish(200);
+
+        JsonNode subsegments = objectMapper.readTree(bytes.toString(StandardCharsets.UTF_8)).get("subsegments");
+        assertEquals(1, subsegments.size());
+        JsonNode serialize = subsegments.get(0);
+        assertTrue(serialize.get("end_time").asDouble() - serialize.get("start_time").asDouble() < 0.005);
+    }
+
+    @Test
+    public void testClientErrorMarksSegmentAsError() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        InvocationTrace trace = new InvocationTracer("test-fn", 1.0, new PrintStream(bytes, true, StandardCharsets.UTF_8)).start();
+
+        trace.finish(401);
+
+        JsonNode segment = objectMapper.readTree(bytes.toString(StandardCharsets.UTF_8));
+        assertTrue(segment.get("error").asBoolean());
+        assertNull(segment.get("fault"));
+        assertEquals(0, segment.get("subsegments").size());
+    }
+    @Test
+    public void testUnsampledTraceDoesNotAllocate() {
+        InvocationTracer tracer = new InvocationTracer("test", 0.0, System.out);
+        ThreadMXBean threadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        traceUnsampled(tracer, 100_000);
+        long before = threadBean.getCurrentThreadAllocatedBytes();
+        traceUnsampled(tracer, 100_000);
+        long allocated = threadBean.getCurrentThreadAllocatedBytes() - before;
+
+        // allow a little slack for the allocation counter itself
+        assertTrue(allocated < 1024, "unsampled tracing allocated " + allocated + " bytes");
+    }
+
+    private JsonNode sampledSegment() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new InvocationTracer("test-fn", 1.0, new PrintStream(bytes, true, StandardCharsets.UTF_8)).start().finish(200);
+        return objectMapper.readTree(bytes.toString(StandardCharsets.UTF_8));
+    }
+
+    private static void traceUnsampled(InvocationTracer tracer, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            InvocationTrace trace = tracer.start();
+            for (InvocationTrace.Stage stage : STAGES) {
+                trace.begin(stage);
+                trace.end(stage);
+            }
+            trace.fail();
+            trace.finish(200);
+        }
+    }
+}